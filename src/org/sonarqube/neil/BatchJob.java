@@ -0,0 +1,124 @@
+package org.sonarqube.neil;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single report to run as part of a batch.  Batch jobs are read from a job spec file which has one
+ * report per line, in the form:
+ * 		{report} {output file} [{param}={value} ...]
+ * for example:
+ * 		users users-90.csv sqDays=90 slDays=90
+ * 		users users-30.csv sqDays=30 slDays=30
+ * 		secrets secrets.csv
+ * 		cohort cohorts.csv sqDays=30,60,90,180 slDays=30,60,90,180
+ * Blank lines and lines starting with # are ignored.
+ */
+public class BatchJob {
+
+	private final String report;
+	private final String fileName;
+	private final Map<String, String> params;
+
+	public BatchJob(String report, String fileName, Map<String, String> params)
+	{
+		this.report = report;
+		this.fileName = fileName;
+		this.params = params;
+	}
+
+	/**
+	 * Read all of the jobs from a job spec file
+	 * @param specFileName - the job spec file to read
+	 * @return each of the jobs listed in the file, in the order they were listed
+	 * @throws IOException if the file could not be read
+	 * @throws IllegalArgumentException if a line does not have both a report and an output file, or a
+	 * 		parameter is not in the form name=value
+	 */
+	public static List<BatchJob> readJobs(String specFileName) throws IOException
+	{
+		List<BatchJob> jobs = new ArrayList<>();
+		try(BufferedReader br = new BufferedReader(new FileReader(specFileName)))
+		{
+			String line;
+			int lineNum = 0;
+			while((line = br.readLine()) != null)
+			{
+				lineNum++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] parts = line.split("\\s+");
+				if(parts.length < 2)
+					throw new IllegalArgumentException(specFileName+" line "+lineNum+": expected a report and an output file");
+				Map<String, String> params = new HashMap<>();
+				for(int i = 2; i < parts.length; i++)
+				{
+					int eq = parts[i].indexOf('=');
+					if(eq <= 0)
+						throw new IllegalArgumentException(specFileName+" line "+lineNum+": expected name=value but got "+parts[i]);
+					params.put(parts[i].substring(0, eq), parts[i].substring(eq+1));
+				}
+				jobs.add(new BatchJob(parts[0], parts[1], params));
+			}
+		}
+		return jobs;
+	}
+
+	public String getReport() {
+		return report;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	/**
+	 * Get a numeric parameter for this job
+	 * @param name - the name of the parameter
+	 * @param defaultValue - the value to use if the parameter was not given
+	 * @return the value of the parameter, or defaultValue if it was not given
+	 * @throws NumberFormatException if the parameter was given but is not a number
+	 */
+	public int getIntParam(String name, int defaultValue)
+	{
+		String value = params.get(name);
+		if(value == null)
+			return defaultValue;
+		return Integer.parseInt(value);
+	}
+
+	/**
+	 * Get a comma separated list of numbers for this job, for example sqDays=30,60,90
+	 * @param name - the name of the parameter
+	 * @param defaultValue - the values to use if the parameter was not given
+	 * @return the values of the parameter, or defaultValue if it was not given
+	 * @throws NumberFormatException if the parameter was given but is not a list of numbers
+	 */
+	public int[] getIntListParam(String name, int[] defaultValue)
+	{
+		String value = params.get(name);
+		if(value == null)
+			return defaultValue;
+		String[] parts = value.split(",");
+		int[] values = new int[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			values[i] = Integer.parseInt(parts[i].trim());
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return report+" -> "+fileName+(params.isEmpty() ? "" : " "+params);
+	}
+
+}
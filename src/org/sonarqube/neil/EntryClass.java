@@ -2,19 +2,37 @@ package org.sonarqube.neil;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.sonarqube.neil.FindNonSLUsers.SQUser;
 /**
  * The main entry point for the jar file.  As mentioned in the expected usage, there are 4 parameters:
  * 		1 - The token used to connect to Sonar (recommended this token is generated by someone with Admin access
  * 		2 - The base URL of your SonarQube instance (for example: https://nautilus.sonarqube.org)
- * 		3 - The output file results will be written
- * 		4 - Which API you are using.  There are two options for this:
+ * 		3 - The output file results will be written (or, for batch, the job spec file)
+ * 		4 - Which API you are using.  There are four options for this:
  * 				users - will determine which users have logged into SonarQube in the last 90 days but 
  * 						have not connected to SonarLint in connected mode in the last 90 days
  * 				secrets - will iterate through all of your projects, and find all of the issues found
- * 						specified to Secrets detection rules
+ * 						specified to Secrets detection rules.  A summary of these issues, counted by project,
+ * 						rule, status and author, is also written next to the output file (see siblingFileName)
+ * 				cohort - will download all of the users once and count them by days since last SonarQube login
+ * 						and days since last SonarLint connection, at 30/60/90/180 days, along with the users
+ * 						list for each pair of thresholds (see writeCohortsToFile)
+ * 				batch - will read a list of reports from the job spec file (see BatchJob) and run them all
+ * 						at the same time, each writing to its own output file
  * 
  * Note that the later option, re: secrets, will take some time to run, as it has to go through every issue from
  * every branch of every project to determine what type of issue it is.  Depending on how many projects and how
@@ -26,12 +44,15 @@ public class EntryClass {
 	
 	private static final Integer DAYS_SINCE_SQ_LOGIN = 90;
 	private static final Integer DAYS_SINCE_SL_CONNECTION = 90;
+	private static final Integer TOP_AUTHORS = 10;
+	private static final int[] COHORT_DAYS = {30, 60, 90, 180};
+	private static final Integer MAX_BATCH_THREADS = 4;
 
 	public static void main(String[] args) 
 	{
 		if(args.length != 4)
 		{
-			System.out.println("Expected usage: java -jar AZApiCaller.jar {1} {2} {3} {4}\nwhere: \n\t {1} is your sonar token,\n\t {2} is your SonarQube URL,\n\t {3} is the name of the file to save results,\n\t {4} is either \"users\" or \"secrets\"");
+			System.out.println("Expected usage: java -jar AZApiCaller.jar {1} {2} {3} {4}\nwhere: \n\t {1} is your sonar token,\n\t {2} is your SonarQube URL,\n\t {3} is the name of the file to save results (or the job spec file for \"batch\"),\n\t {4} is either \"users\", \"secrets\", \"cohort\" or \"batch\"");
 			System.exit(0);
 		}
 		String token = args[0]; // user token to login to Sonar API
@@ -39,19 +60,180 @@ public class EntryClass {
 		String fileName = args[2]; // name of the file to write the output
 		String api = args[3]; // which api to call
 		
-		if(api.equalsIgnoreCase("users"))
+		if(api.equalsIgnoreCase("batch"))
+		{
+			runBatch(token, url, fileName);
+		} else if(isKnownReport(api))
+		{
+			try {
+				runJob(token, url, new BatchJob(api, fileName, new HashMap<>()));
+			} catch (UncheckedIOException e) {
+				e.printStackTrace();
+				System.exit(1);
+			}
+		}
+
+
+	}
+
+	private static boolean isKnownReport(String report) {
+		return report.equalsIgnoreCase("users") || report.equalsIgnoreCase("secrets") || report.equalsIgnoreCase("cohort");
+	}
+
+	/**
+	 * The parameters each report accepts in a job spec
+	 */
+	private static Set<String> allowedParams(String report) {
+		if(report.equalsIgnoreCase("users") || report.equalsIgnoreCase("cohort"))
+			return Set.of("sqDays", "slDays");
+		return Set.of();
+	}
+
+	/**
+	 * Checks that a job can be run before anything is started: the report must be known, every parameter
+	 * must be one the report accepts, and every parameter value must be a number (or list of numbers)
+	 * @throws IllegalArgumentException if the job cannot be run, with a message describing why
+	 */
+	private static void validateJob(BatchJob job) {
+		if(!isKnownReport(job.getReport()))
+			throw new IllegalArgumentException("Unknown report \""+job.getReport()+"\", expected \"users\", \"secrets\" or \"cohort\"");
+		Set<String> allowed = allowedParams(job.getReport());
+		for(String param: job.getParams().keySet())
+		{
+			if(!allowed.contains(param))
+				throw new IllegalArgumentException("Unknown parameter \""+param+"\" for report \""+job.getReport()+"\", expected one of "+allowed);
+		}
+		try {
+			if(job.getReport().equalsIgnoreCase("users"))
+			{
+				job.getIntParam("sqDays", DAYS_SINCE_SQ_LOGIN);
+				job.getIntParam("slDays", DAYS_SINCE_SL_CONNECTION);
+			} else if(job.getReport().equalsIgnoreCase("cohort"))
+			{
+				job.getIntListParam("sqDays", COHORT_DAYS);
+				job.getIntListParam("slDays", COHORT_DAYS);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number in "+job.getParams()+": "+e.getMessage());
+		}
+	}
+
+	/**
+	 * Every file a job will write, including the extra files written next to its output file
+	 */
+	private static List<String> outputFiles(BatchJob job) {
+		String fileName = job.getFileName();
+		List<String> files = new ArrayList<>();
+		files.add(fileName);
+		if(job.getReport().equalsIgnoreCase("secrets"))
+		{
+			files.add(siblingFileName(fileName, "-summary"));
+		} else if(job.getReport().equalsIgnoreCase("cohort"))
+		{
+			UserCohorts cohorts = new UserCohorts(job.getIntListParam("sqDays", COHORT_DAYS), 
+					job.getIntListParam("slDays", COHORT_DAYS));
+			files.add(siblingFileName(fileName, "-thresholds"));
+			for(int sqDays: cohorts.getSQEdges())
+				for(int slDays: cohorts.getSLEdges())
+					files.add(siblingFileName(fileName, "-sq"+sqDays+"-sl"+slDays));
+		}
+		return files;
+	}
+
+	/**
+	 * Runs the jobs listed in the job spec file at the same time, up to MAX_BATCH_THREADS at once, so the
+	 * total time taken is roughly that of the slowest report rather than all of them added together.  Every
+	 * job is checked before any are started (see validateJob), and no two jobs may write the same file, so
+	 * a typo in the last line does not waste a long secrets run.  A job which fails, including failing to
+	 * write its output, is reported without stopping the others.
+	 */
+	private static void runBatch(String token, String url, String specFileName) {
+		List<BatchJob> jobs = null;
+		try {
+			jobs = BatchJob.readJobs(specFileName);
+		} catch (IOException | IllegalArgumentException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		Map<Path, BatchJob> writtenBy = new HashMap<>();
+		for(BatchJob job: jobs)
+		{
+			try {
+				validateJob(job);
+			} catch (IllegalArgumentException e) {
+				System.out.println("Invalid job \""+job+"\" in "+specFileName+": "+e.getMessage());
+				System.exit(1);
+			}
+			for(String file: outputFiles(job))
+			{
+				BatchJob other = writtenBy.putIfAbsent(Paths.get(file).toAbsolutePath().normalize(), job);
+				if(other != null)
+				{
+					System.out.println("Jobs \""+other+"\" and \""+job+"\" in "+specFileName+" would both write "+file);
+					System.exit(1);
+				}
+			}
+		}
+		if(jobs.isEmpty())
+		{
+			System.out.println("No jobs found in "+specFileName);
+			return;
+		}
+		
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs.size(), MAX_BATCH_THREADS));
+		Map<BatchJob, Future<?>> running = new LinkedHashMap<>();
+		for(BatchJob job: jobs)
+			running.put(job, pool.submit(() -> runJob(token, url, job)));
+		pool.shutdown();
+		
+		boolean failed = false;
+		for(Map.Entry<BatchJob, Future<?>> entry: running.entrySet())
+		{
+			try {
+				entry.getValue().get();
+				System.out.println("Finished "+entry.getKey());
+			} catch (ExecutionException e) {
+				System.out.println("Failed "+entry.getKey());
+				e.getCause().printStackTrace();
+				failed = true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				pool.shutdownNow();
+				System.exit(1);
+			}
+		}
+		if(failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Run a single report and write its results.  The users report accepts the optional parameters sqDays
+	 * and slDays, which default to DAYS_SINCE_SQ_LOGIN and DAYS_SINCE_SL_CONNECTION.  The cohort report
+	 * accepts the same parameters as comma separated lists, which default to COHORT_DAYS.
+	 * @throws UncheckedIOException if any of the results could not be written
+	 */
+	private static void runJob(String token, String url, BatchJob job) {
+		String fileName = job.getFileName();
+		if(job.getReport().equalsIgnoreCase("users"))
 		{
 			FindNonSLUsers fnslu = new FindNonSLUsers(token, url);
-			List<SQUser> users = fnslu.getNonSonarLintUsers(DAYS_SINCE_SQ_LOGIN, DAYS_SINCE_SL_CONNECTION);
+			List<SQUser> users = fnslu.getNonSonarLintUsers(job.getIntParam("sqDays", DAYS_SINCE_SQ_LOGIN), 
+					job.getIntParam("slDays", DAYS_SINCE_SL_CONNECTION));
 			writeUsersToFile(fileName, users);
-		} else if(api.equalsIgnoreCase("secrets"))
+		} else if(job.getReport().equalsIgnoreCase("secrets"))
 		{
 			FindSecrets fs = new FindSecrets(token, url);
 			fs.findSecrets();
 			writeSecretsToFile(fileName, fs.getSecretsDetected());
+			writeSecretsSummaryToFile(siblingFileName(fileName, "-summary"), fs.getSummary());
+		} else if(job.getReport().equalsIgnoreCase("cohort"))
+		{
+			FindNonSLUsers fnslu = new FindNonSLUsers(token, url);
+			UserCohorts cohorts = new UserCohorts(job.getIntListParam("sqDays", COHORT_DAYS), 
+					job.getIntListParam("slDays", COHORT_DAYS));
+			cohorts.addAll(fnslu.getAllUsers());
+			writeCohortsToFile(fileName, cohorts);
 		}
-
-
 	}
 
 	private static void writeSecretsToFile(String fileName, List<String> secretsDetected) {
@@ -71,8 +253,70 @@ public class EntryClass {
 				fw.flush();
 			}			
 		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(1);
+			throw new UncheckedIOException("Could not write "+fileName, e);
+		} finally
+		{
+			if(fw != null)
+			{
+				try {
+					fw.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+	}
+
+	/**
+	 * Extra output files sit next to the file given, with a suffix added before the extension, so
+	 * secrets.csv with the suffix -summary becomes secrets-summary.csv
+	 */
+	private static String siblingFileName(String fileName, String suffix) {
+		int dot = fileName.lastIndexOf('.');
+		int slash = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+		if(dot <= slash + 1)
+			return fileName+suffix;
+		return fileName.substring(0, dot)+suffix+fileName.substring(dot);
+	}
+
+	/**
+	 * Writes the cohort report as three kinds of file:
+	 * 		the output file - the histogram, one row per SonarQube bin and one column per SonarLint bin
+	 * 		{output}-thresholds - the number of users for each pair of thresholds
+	 * 		{output}-sq{days}-sl{days} - the users for that pair of thresholds, in the same format as the users report
+	 */
+	private static void writeCohortsToFile(String fileName, UserCohorts cohorts) {
+		writeCohortHistogramToFile(fileName, cohorts);
+		writeCohortThresholdsToFile(siblingFileName(fileName, "-thresholds"), cohorts);
+		for(int sqDays: cohorts.getSQEdges())
+			for(int slDays: cohorts.getSLEdges())
+				writeUsersToFile(siblingFileName(fileName, "-sq"+sqDays+"-sl"+slDays), 
+						cohorts.getNonSonarLintUsers(sqDays, slDays));
+	}
+
+	private static void writeCohortHistogramToFile(String fileName, UserCohorts cohorts) {
+		long[][] counts = cohorts.getCounts();
+		FileWriter fw = null;
+		try
+		{
+			fw = new FileWriter(fileName);
+			// write all of the header information for the file
+			fw.write("lastSonarQubeDays/lastSonarLintDays");
+			for(int j = 0; j < counts[0].length; j++)
+				fw.write(","+cohorts.getSLBinLabel(j));
+			fw.write("\n");
+			// one row per SonarQube bin
+			for(int i = 0; i < counts.length; i++)
+			{
+				fw.write(cohorts.getSQBinLabel(i));
+				for(int j = 0; j < counts[i].length; j++)
+					fw.write(","+counts[i][j]);
+				fw.write("\n");
+			}
+			fw.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write "+fileName, e);
 		} finally
 		{
 			if(fw != null)
@@ -87,6 +331,80 @@ public class EntryClass {
 		
 	}
 
+	private static void writeCohortThresholdsToFile(String fileName, UserCohorts cohorts) {
+		FileWriter fw = null;
+		try
+		{
+			fw = new FileWriter(fileName);
+			// write all of the header information for the file
+			fw.write("lastSonarQubeDays,lastSonarLintDays,users");
+			fw.write("\n");
+			// one row per pair of thresholds
+			for(int sqDays: cohorts.getSQEdges())
+			{
+				for(int slDays: cohorts.getSLEdges())
+				{
+					fw.write(sqDays+","+slDays+","+cohorts.countNonSonarLintUsers(sqDays, slDays));
+					fw.write("\n");
+				}
+			}
+			fw.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write "+fileName, e);
+		} finally
+		{
+			if(fw != null)
+			{
+				try {
+					fw.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+	}
+
+	private static void writeSecretsSummaryToFile(String fileName, SecretsSummary summary) {
+		FileWriter fw = null;
+		try
+		{
+			fw = new FileWriter(fileName);
+			// write all of the header information for the file
+			fw.write("group,key,count");
+			fw.write("\n");
+			fw.write("total,all,"+summary.getTotal());
+			fw.write("\n");
+			writeSummaryGroup(fw, "project", summary.getByProject().entrySet());
+			writeSummaryGroup(fw, "rule", summary.getByRule().entrySet());
+			writeSummaryGroup(fw, "status", summary.getByStatus().entrySet());
+			writeSummaryGroup(fw, "author", summary.getByAuthor().entrySet());
+			writeSummaryGroup(fw, "topAuthor", summary.getTopAuthors(TOP_AUTHORS));
+			fw.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write "+fileName, e);
+		} finally
+		{
+			if(fw != null)
+			{
+				try {
+					fw.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+	}
+
+	private static void writeSummaryGroup(FileWriter fw, String group, Iterable<Map.Entry<String, Long>> counts) throws IOException {
+		for(Map.Entry<String, Long> count: counts)
+		{
+			fw.write(group+","+count.getKey()+","+count.getValue());
+			fw.write("\n");
+		}
+	}
+
 	private static void writeUsersToFile(String fileName, List<SQUser> users) {
 		FileWriter fw = null;
 		try
@@ -104,8 +422,7 @@ public class EntryClass {
 				fw.flush();
 			}			
 		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(1);
+			throw new UncheckedIOException("Could not write "+fileName, e);
 		} finally
 		{
 			if(fw != null)
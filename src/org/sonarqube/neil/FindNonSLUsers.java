@@ -73,22 +73,48 @@ public class FindNonSLUsers {
 	public List<SQUser> getNonSonarLintUsers(int lastSQLoginDays, int lastSLConnectionDays)
 	{
 		List<SQUser> nonSLUsers = new ArrayList<>();
+		for(SQUser user: getAllUsers())
+		{
+			if(isNonSonarLintUser(user, lastSQLoginDays, lastSLConnectionDays))
+				nonSLUsers.add(user);
+		}
+		return nonSLUsers;
+	}
+	
+	/**
+	 * Get every SonarQube user, with the number of days since they last connected to SonarQube and SonarLint
+	 * already calculated.  This makes one pass over all of the user pages, so the result can be used to answer
+	 * several different day thresholds without calling the API again.
+	 * @return all of the users in SonarQube
+	 */
+	public List<SQUser> getAllUsers()
+	{
+		List<SQUser> allUsers = new ArrayList<>();
 		int totalUsers = getTotalUsers();
 		if(totalUsers == 0)
-			return nonSLUsers;
+			return allUsers;
 		int pageCounter = 1;
 		int remainingUsers = totalUsers;
 		int pageSize = 50;
 		while(remainingUsers > 0)
 		{
-			nonSLUsers.addAll(getNextBatch(pageCounter, pageSize, lastSQLoginDays, lastSLConnectionDays));
+			allUsers.addAll(getNextBatch(pageCounter, pageSize));
 			remainingUsers-=pageSize;
 			pageCounter++;
 		}
-		return nonSLUsers;
+		return allUsers;
+	}
+	
+	/**
+	 * @return true if the user has connected to SonarQube within lastSQLoginDays but has not connected to
+	 * 		SonarLint within lastSLConnectionDays
+	 */
+	public static boolean isNonSonarLintUser(SQUser user, int lastSQLoginDays, int lastSLConnectionDays)
+	{
+		return user.getLastSQConnDays() < lastSQLoginDays && user.getLastSLConnDays() > lastSLConnectionDays;
 	}
 
-	private List<SQUser> getNextBatch(int pageCounter, int pageSize, int lastSQLoginDays, int lastSLConnectionDays) 
+	private List<SQUser> getNextBatch(int pageCounter, int pageSize) 
 	{
 		List<SQUser> thisUsers = new ArrayList<>();
 		try {
@@ -131,8 +157,7 @@ public class FindNonSLUsers {
 				sqUser.setLastSQConnDays(lastSQConnDays);
 				int lastSLConnDays = (int) sqUser.calcLastSLConnDays();
 				sqUser.setLastSLConnDays(lastSLConnDays);
-				if(lastSQConnDays < lastSQLoginDays && lastSLConnDays > lastSLConnectionDays)
-					thisUsers.add(sqUser);
+				thisUsers.add(sqUser);
 			}
 			
 		} catch (IOException e) {
@@ -20,6 +20,7 @@ public class FindSecrets {
 	private final String hostURL;
 	
 	private List<String> secretsDetected = new ArrayList<>();
+	private SecretsSummary summary = new SecretsSummary();
 	
 	public FindSecrets(String token, String url)
 	{
@@ -35,7 +36,7 @@ public class FindSecrets {
 	 * 2. Find all of the branches for each of these projects
 	 * 3. Find all of the issues for each branch of each project
 	 * 4. Determine which of these issues are related to Secrets detection rules
-	 * 5. Any such issues get stored in the secretsDetected List
+	 * 5. Any such issues get stored in the secretsDetected List and counted in the summary
 	 */
 	public void findSecrets()
 	{
@@ -99,6 +100,7 @@ public class FindSecrets {
 					f.setAuthor(finding.getString("author"));
 					//f.setAssignee(finding.getString("assignee"));
 					secretsDetected.add(f.toString());
+					summary.add(projectKey, rule, f.getStatus(), f.getAuthor());
 				}
 			}
 
@@ -113,6 +115,11 @@ public class FindSecrets {
 	{
 		return secretsDetected;
 	}
+	
+	public SecretsSummary getSummary()
+	{
+		return summary;
+	}
 
 	private List<String> getBranchesForProject(String projectKey) 
 	{
@@ -0,0 +1,97 @@
+package org.sonarqube.neil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps running counts of the Secrets detection findings while FindSecrets is parsing them, so that a
+ * summary by project, rule, status and author can be written without having to load the detailed report
+ * back into a spreadsheet.  The counters are LongAdders held in ConcurrentHashMaps, so findings can be
+ * added from several threads at once without any extra locking.
+ */
+public class SecretsSummary {
+
+	private final LongAdder total = new LongAdder();
+	private final Map<String, LongAdder> byProject = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> byRule = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> byStatus = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> byAuthor = new ConcurrentHashMap<>();
+
+	/**
+	 * Count a single finding against each of the summary groups
+	 * @param projectKey - the project the finding was raised in
+	 * @param rule - the Secrets detection rule which raised the finding
+	 * @param status - the status of the issue
+	 * @param author - the author of the code the finding was raised on
+	 */
+	public void add(String projectKey, String rule, String status, String author)
+	{
+		total.increment();
+		increment(byProject, projectKey);
+		increment(byRule, rule);
+		increment(byStatus, status);
+		increment(byAuthor, author);
+	}
+
+	private void increment(Map<String, LongAdder> counts, String key)
+	{
+		if(key == null || key.isEmpty())
+			key = "(none)";
+		counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+	}
+
+	public long getTotal()
+	{
+		return total.sum();
+	}
+
+	public Map<String, Long> getByProject()
+	{
+		return snapshot(byProject);
+	}
+
+	public Map<String, Long> getByRule()
+	{
+		return snapshot(byRule);
+	}
+
+	public Map<String, Long> getByStatus()
+	{
+		return snapshot(byStatus);
+	}
+
+	public Map<String, Long> getByAuthor()
+	{
+		return snapshot(byAuthor);
+	}
+
+	/**
+	 * Get the authors with the most findings, highest count first
+	 * @param n - the maximum number of authors to return
+	 * @return up to n author/count pairs, ties broken by author name
+	 */
+	public List<Map.Entry<String, Long>> getTopAuthors(int n)
+	{
+		List<Map.Entry<String, Long>> authors = new ArrayList<>(getByAuthor().entrySet());
+		authors.sort((a, b) -> {
+			int cmp = Long.compare(b.getValue(), a.getValue());
+			return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+		});
+		if(authors.size() > n)
+			return new ArrayList<>(authors.subList(0, n));
+		return authors;
+	}
+
+	private Map<String, Long> snapshot(Map<String, LongAdder> counts)
+	{
+		Map<String, Long> sorted = new TreeMap<>();
+		for(Map.Entry<String, LongAdder> entry: counts.entrySet())
+			sorted.put(entry.getKey(), entry.getValue().sum());
+		return sorted;
+	}
+
+}
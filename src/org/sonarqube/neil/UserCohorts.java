@@ -0,0 +1,154 @@
+package org.sonarqube.neil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonarqube.neil.FindNonSLUsers.SQUser;
+
+/**
+ * Bins users into a 2D histogram of days since their last SonarQube login by days since their last SonarLint
+ * connection.  The bin edges are the day thresholds to be reported on, so the number of users for any pair of
+ * thresholds can be read straight from the histogram, and the user lists for each pair come from the same
+ * set of users, all from a single pass over the user pages.
+ *
+ * The bins line up with the checks in FindNonSLUsers.isNonSonarLintUser:
+ * 		SonarQube bin i holds users with days < sqEdges[i] (and not in an earlier bin), the last bin holds
+ * 				everyone else, including users who have never logged in
+ * 		SonarLint bin j holds users with days <= slEdges[j] (and not in an earlier bin), the last bin holds
+ * 				everyone else, including users who have never connected
+ */
+public class UserCohorts {
+
+	private final int[] sqEdges;
+	private final int[] slEdges;
+	private final long[][] counts;
+	private final List<SQUser> users = new ArrayList<>();
+
+	/**
+	 * @param sqEdges - the days since last SonarQube login thresholds
+	 * @param slEdges - the days since last SonarLint connection thresholds
+	 */
+	public UserCohorts(int[] sqEdges, int[] slEdges)
+	{
+		this.sqEdges = sortedCopy(sqEdges);
+		this.slEdges = sortedCopy(slEdges);
+		this.counts = new long[this.sqEdges.length+1][this.slEdges.length+1];
+	}
+
+	private static int[] sortedCopy(int[] edges)
+	{
+		int[] copy = Arrays.stream(edges).distinct().toArray();
+		Arrays.sort(copy);
+		return copy;
+	}
+
+	public void addAll(List<SQUser> users)
+	{
+		for(SQUser user: users)
+			add(user);
+	}
+
+	public void add(SQUser user)
+	{
+		counts[sqBin(user.getLastSQConnDays())][slBin(user.getLastSLConnDays())]++;
+		users.add(user);
+	}
+
+	private int sqBin(int days)
+	{
+		int bin = 0;
+		while(bin < sqEdges.length && days >= sqEdges[bin])
+			bin++;
+		return bin;
+	}
+
+	private int slBin(int days)
+	{
+		int bin = 0;
+		while(bin < slEdges.length && days > slEdges[bin])
+			bin++;
+		return bin;
+	}
+
+	public int[] getSQEdges() {
+		return sqEdges.clone();
+	}
+
+	public int[] getSLEdges() {
+		return slEdges.clone();
+	}
+
+	/**
+	 * @return the histogram counts, indexed by [SonarQube bin][SonarLint bin]
+	 */
+	public long[][] getCounts() {
+		long[][] copy = new long[counts.length][];
+		for(int i = 0; i < counts.length; i++)
+			copy[i] = counts[i].clone();
+		return copy;
+	}
+
+	/**
+	 * @return the range of days held in the SonarQube bin, for example 30-59 or >=180
+	 */
+	public String getSQBinLabel(int bin)
+	{
+		if(bin < sqEdges.length)
+			return rangeLabel(bin == 0 ? 0 : sqEdges[bin-1], sqEdges[bin]-1);
+		return sqEdges.length == 0 ? "all" : ">="+sqEdges[sqEdges.length-1];
+	}
+
+	/**
+	 * @return the range of days held in the SonarLint bin, for example 31-60 or >180
+	 */
+	public String getSLBinLabel(int bin)
+	{
+		if(bin < slEdges.length)
+			return rangeLabel(bin == 0 ? 0 : slEdges[bin-1]+1, slEdges[bin]);
+		return slEdges.length == 0 ? "all" : ">"+slEdges[slEdges.length-1];
+	}
+
+	private static String rangeLabel(int from, int to)
+	{
+		if(to < from)
+			return "none";
+		if(to == from)
+			return String.valueOf(from);
+		return from+"-"+to;
+	}
+
+	/**
+	 * Count the users who have logged into SonarQube within lastSQLoginDays but have not connected to SonarLint
+	 * within lastSLConnectionDays, using only the histogram
+	 * @throws IllegalArgumentException if either threshold is not one of the bin edges
+	 */
+	public long countNonSonarLintUsers(int lastSQLoginDays, int lastSLConnectionDays)
+	{
+		int sqIndex = Arrays.binarySearch(sqEdges, lastSQLoginDays);
+		int slIndex = Arrays.binarySearch(slEdges, lastSLConnectionDays);
+		if(sqIndex < 0 || slIndex < 0)
+			throw new IllegalArgumentException("thresholds "+lastSQLoginDays+"/"+lastSLConnectionDays+" are not bin edges");
+		long total = 0;
+		for(int i = 0; i <= sqIndex; i++)
+			for(int j = slIndex+1; j < counts[i].length; j++)
+				total += counts[i][j];
+		return total;
+	}
+
+	/**
+	 * Get the users who have logged into SonarQube within lastSQLoginDays but have not connected to SonarLint
+	 * within lastSLConnectionDays
+	 */
+	public List<SQUser> getNonSonarLintUsers(int lastSQLoginDays, int lastSLConnectionDays)
+	{
+		List<SQUser> nonSLUsers = new ArrayList<>();
+		for(SQUser user: users)
+		{
+			if(FindNonSLUsers.isNonSonarLintUser(user, lastSQLoginDays, lastSLConnectionDays))
+				nonSLUsers.add(user);
+		}
+		return nonSLUsers;
+	}
+
+}